@@ -0,0 +1,14 @@
+// KnnCandidate.java
+// Item da fila de prioridade do kNN best-first: um nó (N) ainda a expandir ou um ponto,
+// com a distância mínima (ao quadrado) até o ponto de consulta
+public class KnnCandidate<N> {
+    public final double dist;
+    public final N node;     // non-null para nós
+    public final Point point; // non-null para pontos
+
+    public KnnCandidate(double dist, N node, Point point) {
+        this.dist = dist;
+        this.node = node;
+        this.point = point;
+    }
+}
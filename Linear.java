@@ -1,7 +1,9 @@
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.function.Consumer;
 
-public class Linear {
+public class Linear implements SpatialIndex {
     private final List<Point> points = new ArrayList<>();
 
     public void insert(Point p) {
@@ -10,9 +12,19 @@ public class Linear {
 
     public List<Point> rangeQuery(Rectangle r) {
         List<Point> out = new ArrayList<>();
+        rangeQuery(r, out::add);
+        return out;
+    }
+
+    public void rangeQuery(Rectangle r, Consumer<Point> visitor) {
         for (Point p : points) {
-            if (p.x >= r.minX && p.x <= r.maxX && p.y >= r.minY && p.y <= r.maxY) out.add(p);
+            if (p.x >= r.minX && p.x <= r.maxX && p.y >= r.minY && p.y <= r.maxY) visitor.accept(p);
         }
-        return out;
+    }
+
+    public List<Point> knn(double x, double y, int k) {
+        List<Point> sorted = new ArrayList<>(points);
+        sorted.sort(Comparator.comparingDouble(p -> (p.x - x) * (p.x - x) + (p.y - y) * (p.y - y)));
+        return new ArrayList<>(sorted.subList(0, Math.max(0, Math.min(k, sorted.size()))));
     }
 }
@@ -0,0 +1,156 @@
+// LoadGenerator.java
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Gerador de carga para o QueryServer em localhost. Para cada nível de concorrência
+// dispara clientes em loop fechado durante DURACAO segundos e reporta QPS e latências.
+public class LoadGenerator {
+
+    static final int[] CONCORRENCIAS = { 1, 2, 4, 8, 16, 32, 64, 128 };
+    static final double SPACE = TestComparativo.SPACE;
+
+    // Mistura de operações: 70% range, 20% count, 10% kNN
+    static final double FRAC_RANGE = 0.7;
+    static final double FRAC_COUNT = 0.2;
+    static final int KNN_K = 10;
+
+    // Uso: java LoadGenerator [porta] [duracaoSegundos] [queryFrac]
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int duracao = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        double frac = args.length > 2 ? Double.parseDouble(args[2]) : 0.01;
+        String base = "http://localhost:" + port;
+
+        // Mantém conexões keep-alive suficientes para todos os clientes
+        System.setProperty("http.maxConnections", "512");
+
+        ExecutorService executor = QueryServer.newThreadPerTaskExecutor();
+        try {
+            // Aquecimento (JIT do servidor e do cliente), não reportado
+            rodarNivel(executor, base, 8, 2, frac);
+
+            System.out.println("Concorrencia;Requisicoes;Erros;QPS;p50(ms);p99(ms);Req_por_Travessia");
+            for (int c : CONCORRENCIAS) {
+                long[] antes = lerStats(base);
+                Resultado r = rodarNivel(executor, base, c, duracao, frac);
+                long[] depois = lerStats(base);
+
+                long trav = depois[1] - antes[1];
+                double reqPorTrav = trav == 0 ? 0 : (double) (depois[0] - antes[0]) / trav;
+                System.out.printf(Locale.US, "%d;%d;%d;%.1f;%.4f;%.4f;%.2f\n",
+                    c, r.latencias.length, r.erros,
+                    r.latencias.length / r.segundos,
+                    percentil(r.latencias, 0.50), percentil(r.latencias, 0.99),
+                    reqPorTrav
+                );
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    static class Resultado {
+        double[] latencias; // ms, ordenadas
+        int erros;
+        double segundos;
+    }
+
+    static Resultado rodarNivel(ExecutorService executor, String base, int concorrencia, int duracao, double frac)
+            throws Exception {
+        long inicio = System.nanoTime();
+        long fim = inicio + duracao * 1_000_000_000L;
+
+        List<Future<Cliente>> clientes = new ArrayList<>();
+        for (int i = 0; i < concorrencia; i++) {
+            clientes.add(executor.submit(() -> new Cliente().rodar(base, fim, frac)));
+        }
+
+        List<Double> todas = new ArrayList<>();
+        Resultado r = new Resultado();
+        for (Future<Cliente> f : clientes) {
+            Cliente c = f.get();
+            todas.addAll(c.latencias);
+            r.erros += c.erros;
+        }
+        r.segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+        r.latencias = new double[todas.size()];
+        for (int i = 0; i < r.latencias.length; i++) r.latencias[i] = todas.get(i);
+        Arrays.sort(r.latencias);
+        return r;
+    }
+
+    static class Cliente {
+        final List<Double> latencias = new ArrayList<>();
+        int erros = 0;
+
+        Cliente rodar(String base, long fim, double frac) {
+            ThreadLocalRandom rnd = ThreadLocalRandom.current();
+            double size = Math.sqrt(SPACE * SPACE * frac);
+            byte[] buf = new byte[64 * 1024];
+
+            while (System.nanoTime() < fim) {
+                String url;
+                double op = rnd.nextDouble();
+                if (op < FRAC_RANGE + FRAC_COUNT) {
+                    double x = rnd.nextDouble() * (SPACE - size);
+                    double y = rnd.nextDouble() * (SPACE - size);
+                    url = base + (op < FRAC_RANGE ? "/range" : "/count")
+                        + "?minX=" + x + "&minY=" + y + "&maxX=" + (x + size) + "&maxY=" + (y + size);
+                } else {
+                    url = base + "/knn?x=" + rnd.nextDouble() * SPACE + "&y=" + rnd.nextDouble() * SPACE + "&k=" + KNN_K;
+                }
+
+                long t0 = System.nanoTime();
+                try {
+                    HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+                    int status = conn.getResponseCode();
+                    // Lê o corpo inteiro para que a conexão volte ao pool keep-alive
+                    try (InputStream in = status < 400 ? conn.getInputStream() : conn.getErrorStream()) {
+                        if (in != null) while (in.read(buf) >= 0) { }
+                    }
+                    // Só respostas bem-sucedidas entram nos percentis
+                    if (status == 200) latencias.add((System.nanoTime() - t0) / 1_000_000.0);
+                    else erros++;
+                } catch (IOException e) {
+                    erros++;
+                }
+            }
+            return this;
+        }
+    }
+
+    // Retorna {requisicoes, travessias} do coalescer do servidor
+    static long[] lerStats(String base) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(base + "/stats").openConnection();
+        try (InputStream in = conn.getInputStream()) {
+            String[] s = new String(readAll(in), StandardCharsets.UTF_8).trim().split(";");
+            return new long[] { Long.parseLong(s[0]), Long.parseLong(s[1]) };
+        }
+    }
+
+    static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        int n;
+        while ((n = in.read(buf)) >= 0) out.write(buf, 0, n);
+        return out.toByteArray();
+    }
+
+    // Percentil por nearest-rank sobre o array já ordenado
+    static double percentil(double[] ordenado, double p) {
+        if (ordenado.length == 0) return 0;
+        int idx = (int) Math.ceil(p * ordenado.length) - 1;
+        return ordenado[Math.max(0, Math.min(idx, ordenado.length - 1))];
+    }
+}
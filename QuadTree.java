@@ -1,8 +1,11 @@
 // QuadTree.java
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
 
-public class QuadTree {
+public class QuadTree implements SpatialIndex {
     private static final int CAPACITY = 64; 
     private static final int MAX_DEPTH = 24;
 
@@ -44,17 +47,17 @@ public class QuadTree {
 
     public List<Point> rangeQuery(Rectangle range) {
         List<Point> found = new ArrayList<>();
-        rangeQuery(range, found);
+        rangeQuery(range, found::add);
         return found;
     }
 
-    private void rangeQuery(Rectangle range, List<Point> found) {
+    public void rangeQuery(Rectangle range, Consumer<Point> found) {
         if (!intersects(boundary, range)) return;
 
         // Otimização: se o boundary está completamente dentro da query, adiciona todos os pontos sem verificação
         if (contains(range, boundary)) {
             for (Point p : points) {
-                found.add(p);
+                found.accept(p);
             }
             if (subdivided) {
                 nw.rangeQuery(range, found);
@@ -68,7 +71,7 @@ public class QuadTree {
         // Verificação normal ponto a ponto
         for (Point p : points) {
             if (p.x >= range.minX && p.x <= range.maxX && p.y >= range.minY && p.y <= range.maxY) {
-                found.add(p);
+                found.accept(p);
             }
         }
 
@@ -80,6 +83,35 @@ public class QuadTree {
         }
     }
 
+    // Busca best-first sobre os quadrantes, ordenada pela distância mínima ao boundary
+    public List<Point> knn(double x, double y, int k) {
+        List<Point> out = new ArrayList<>();
+        if (k <= 0) return out;
+
+        PriorityQueue<KnnCandidate<QuadTree>> queue = new PriorityQueue<>(Comparator.comparingDouble(c -> c.dist));
+        queue.add(new KnnCandidate<>(boundary.minDistSq(x, y), this, null));
+
+        while (!queue.isEmpty() && out.size() < k) {
+            KnnCandidate<QuadTree> c = queue.poll();
+            if (c.point != null) {
+                out.add(c.point);
+                continue;
+            }
+            QuadTree q = c.node;
+            for (Point p : q.points) {
+                double dx = p.x - x, dy = p.y - y;
+                queue.add(new KnnCandidate<>(dx * dx + dy * dy, null, p));
+            }
+            if (q.subdivided) {
+                queue.add(new KnnCandidate<>(q.nw.boundary.minDistSq(x, y), q.nw, null));
+                queue.add(new KnnCandidate<>(q.ne.boundary.minDistSq(x, y), q.ne, null));
+                queue.add(new KnnCandidate<>(q.sw.boundary.minDistSq(x, y), q.sw, null));
+                queue.add(new KnnCandidate<>(q.se.boundary.minDistSq(x, y), q.se, null));
+            }
+        }
+        return out;
+    }
+
     private void subdivide() {
         subdivided = true;
         double midX = (boundary.minX + boundary.maxX) / 2.0;
@@ -0,0 +1,238 @@
+// QueryCoalescer.java
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Agrupa range queries concorrentes em micro-lotes. Consultas do mesmo lote cujos
+// retângulos se sobrepõem são respondidas por uma única travessia do índice sobre
+// o retângulo união; cada ponto encontrado é repassado apenas às requisições que o contêm.
+// Como o grupo é percorrido por uma única thread, um visitor lento (ex.: cliente HTTP que
+// lê devagar) atrasa todos os membros do grupo até ele terminar ou ser cancelado.
+public class QueryCoalescer {
+    private static final int MAX_BATCH = 256;
+    // Lançada pelo visitor para abortar a travessia de uma requisição já cancelada
+    private static final CancellationException CANCELLED = new CancellationException("consulta cancelada");
+    // A união só é aceita se sua área não passar de 1.5x a soma das áreas do grupo,
+    // senão a travessia compartilhada visita mais nós do que as consultas separadas
+    private static final double MAX_UNION_GROWTH = 1.5;
+
+    private final SpatialIndex index;
+    private final Executor executor;
+    private final long windowNanos;
+    private final LinkedBlockingQueue<Request> pending = new LinkedBlockingQueue<>();
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    // Estatísticas para o /stats do servidor
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong traversals = new AtomicLong();
+
+    public QueryCoalescer(SpatialIndex index, Executor executor, long windowMicros) {
+        this.index = index;
+        this.executor = executor;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.dispatcher = new Thread(this::dispatchLoop, "query-coalescer");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    // Entrega os pontos de 'rect' ao visitor, a partir da thread da travessia.
+    // O futuro completa quando a travessia termina. Para cancelar, complete o futuro
+    // (ex.: completeExceptionally): a travessia para de chamar o visitor no próximo ponto.
+    public CompletableFuture<Void> submit(Rectangle rect, Consumer<Point> visitor) {
+        return enqueue(new Request(rect, visitor));
+    }
+
+    public CompletableFuture<Integer> submitCount(Rectangle rect) {
+        Request r = new Request(rect, null);
+        CompletableFuture<Integer> result = enqueue(r).thenApply(v -> r.count);
+        // Cancelar o futuro derivado também cancela a requisição
+        result.whenComplete((v, e) -> {
+            if (e != null) r.done.completeExceptionally(e);
+        });
+        return result;
+    }
+
+    private CompletableFuture<Void> enqueue(Request r) {
+        if (!running) {
+            r.done.completeExceptionally(new IllegalStateException("coalescer encerrado"));
+            return r.done;
+        }
+        requests.incrementAndGet();
+        pending.add(r);
+        // shutdown() pode ter drenado a fila entre a checagem acima e o add
+        if (!running && pending.remove(r)) {
+            r.done.completeExceptionally(new IllegalStateException("coalescer encerrado"));
+        }
+        return r.done;
+    }
+
+    public long requestCount() {
+        return requests.get();
+    }
+
+    public long traversalCount() {
+        return traversals.get();
+    }
+
+    public void shutdown() {
+        running = false;
+        dispatcher.interrupt();
+    }
+
+    private void dispatchLoop() {
+        List<Request> batch = new ArrayList<>();
+        while (running) {
+            try {
+                batch.add(pending.take());
+                // Só espera a janela se já há outras requisições na fila; com uma única
+                // requisição em andamento a espera apenas somaria latência
+                if (!pending.isEmpty()) {
+                    long deadline = System.nanoTime() + windowNanos;
+                    while (batch.size() < MAX_BATCH) {
+                        long left = deadline - System.nanoTime();
+                        Request r = left > 0 ? pending.poll(left, TimeUnit.NANOSECONDS) : pending.poll();
+                        if (r == null) break;
+                        batch.add(r);
+                    }
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+
+            for (Group g : group(batch)) {
+                traversals.incrementAndGet();
+                try {
+                    executor.execute(() -> run(g));
+                } catch (RejectedExecutionException e) {
+                    // Executor encerrado (QueryServer.stop) com o lote já formado
+                    for (Request r : g.members) r.done.completeExceptionally(e);
+                }
+            }
+            batch = new ArrayList<>();
+        }
+
+        IllegalStateException closed = new IllegalStateException("coalescer encerrado");
+        for (Request r : batch) r.done.completeExceptionally(closed);
+        Request r;
+        while ((r = pending.poll()) != null) {
+            r.done.completeExceptionally(closed);
+        }
+    }
+
+    // Agrupamento guloso: cada consulta entra no primeiro grupo cuja união ela intercepta
+    private List<Group> group(List<Request> batch) {
+        List<Group> groups = new ArrayList<>();
+        for (Request r : batch) {
+            Group target = null;
+            for (Group g : groups) {
+                if (!intersect(g.union, r.rect)) continue;
+                Rectangle union = g.union.copy();
+                union.expandToInclude(r.rect);
+                if (union.area() <= (g.areaSum + r.rect.area()) * MAX_UNION_GROWTH) {
+                    target = g;
+                    break;
+                }
+            }
+            if (target == null) {
+                groups.add(new Group(r));
+            } else {
+                target.add(r);
+            }
+        }
+        return groups;
+    }
+
+    private void run(Group g) {
+        if (g.members.size() == 1) {
+            Request r = g.members.get(0);
+            try {
+                index.rangeQuery(r.rect, p -> {
+                    // Requisição cancelada (ex.: timeout no handler): interrompe a travessia
+                    if (r.done.isDone()) throw CANCELLED;
+                    r.accept(p);
+                });
+                r.done.complete(null);
+            } catch (RuntimeException e) {
+                r.done.completeExceptionally(e);
+            }
+            return;
+        }
+
+        // Travessia compartilhada: uma falha no visitor de um membro (ex.: cliente
+        // desconectado) encerra só aquele membro, os demais continuam recebendo pontos
+        try {
+            index.rangeQuery(g.union, p -> {
+                if (g.allDone()) throw CANCELLED;
+                for (Request r : g.members) {
+                    if (r.done.isDone() || !r.contains(p)) continue;
+                    try {
+                        r.accept(p);
+                    } catch (RuntimeException e) {
+                        r.done.completeExceptionally(e);
+                    }
+                }
+            });
+            for (Request r : g.members) r.done.complete(null);
+        } catch (RuntimeException e) {
+            for (Request r : g.members) r.done.completeExceptionally(e);
+        }
+    }
+
+    private boolean intersect(Rectangle a, Rectangle b) {
+        return !(a.maxX < b.minX || a.maxY < b.minY || a.minX > b.maxX || a.minY > b.maxY);
+    }
+
+    private static final class Request {
+        final Rectangle rect;
+        final Consumer<Point> visitor; // null para count
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        // Escrito só pela thread da travessia; lido após 'done' completar
+        int count;
+
+        Request(Rectangle rect, Consumer<Point> visitor) {
+            this.rect = rect;
+            this.visitor = visitor;
+        }
+
+        boolean contains(Point p) {
+            return p.x >= rect.minX && p.x <= rect.maxX && p.y >= rect.minY && p.y <= rect.maxY;
+        }
+
+        void accept(Point p) {
+            if (visitor == null) count++;
+            else visitor.accept(p);
+        }
+    }
+
+    private static final class Group {
+        final List<Request> members = new ArrayList<>();
+        final Rectangle union;
+        double areaSum;
+
+        Group(Request first) {
+            this.union = first.rect.copy();
+            add(first);
+        }
+
+        void add(Request r) {
+            members.add(r);
+            union.expandToInclude(r.rect);
+            areaSum += r.rect.area();
+        }
+
+        boolean allDone() {
+            for (Request r : members) {
+                if (!r.done.isDone()) return false;
+            }
+            return true;
+        }
+    }
+}
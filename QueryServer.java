@@ -0,0 +1,257 @@
+// QueryServer.java
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Servidor HTTP local que responde consultas sobre um índice já carregado:
+//   GET /range?minX=&minY=&maxX=&maxY=   -> uma linha "id;x;y" por ponto
+//   GET /count?minX=&minY=&maxX=&maxY=   -> quantidade de pontos
+//   GET /knn?x=&y=&k=                    -> k linhas "id;x;y", da mais próxima à mais distante (k <= MAX_K)
+//   GET /stats                           -> "requisicoes;travessias" do coalescer
+// Range e count passam pelo QueryCoalescer; o kNN é executado direto no índice.
+// Range e kNN respondem 200 em chunked antes de terminar a consulta. Se ela falhar depois
+// disso, a conexão é derrubada sem o chunk final: o cliente deve tratar um corpo chunked
+// incompleto (ex.: IOException no HttpURLConnection, curl com código 18) como erro.
+public class QueryServer {
+    private static final long COALESCE_WINDOW_MICROS = 200;
+    private static final int MAX_K = 10000;
+    private static final long QUERY_TIMEOUT_SECONDS = 30;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final QueryCoalescer coalescer;
+    private final SpatialIndex index;
+
+    public QueryServer(SpatialIndex index, int port) throws IOException {
+        this.index = index;
+        this.executor = newThreadPerTaskExecutor();
+        this.coalescer = new QueryCoalescer(index, executor, COALESCE_WINDOW_MICROS);
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+        this.server.setExecutor(executor);
+        this.server.createContext("/range", ex -> handle(ex, this::range));
+        this.server.createContext("/count", ex -> handle(ex, this::count));
+        this.server.createContext("/knn", ex -> handle(ex, this::knn));
+        this.server.createContext("/stats", ex -> handle(ex, this::stats));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        // Encerra o coalescer antes para que handlers esperando uma consulta recebam erro
+        coalescer.shutdown();
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    // Uma thread virtual por requisição no JDK 21+; em JDKs anteriores cai para um pool de threads comum
+    static ExecutorService newThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private interface Handler {
+        void handle(HttpExchange ex, Map<String, String> params) throws IOException;
+    }
+
+    // Exceções (inclusive IOException) não fecham o exchange: ex.close() escreveria o chunk
+    // final e uma resposta parcial pareceria completa. Relançar faz o HttpServer derrubar a conexão.
+    private void handle(HttpExchange ex, Handler h) throws IOException {
+        try {
+            h.handle(ex, parseParams(ex.getRequestURI().getRawQuery()));
+        } catch (IllegalArgumentException e) {
+            abortIfStreaming(ex, e);
+            sendText(ex, 400, e.getMessage() + "\n");
+        } catch (RuntimeException e) {
+            abortIfStreaming(ex, e);
+            sendText(ex, 500, e + "\n");
+        }
+        ex.close();
+    }
+
+    // Cabeçalhos já enviados (resposta em streaming): o status não pode mais ser trocado
+    private void abortIfStreaming(HttpExchange ex, RuntimeException e) {
+        if (ex.getResponseCode() != -1) throw e;
+    }
+
+    // Os pontos são escritos na resposta pela thread da travessia, à medida que o índice
+    // os encontra; nenhuma lista de resultado é montada
+    private void range(HttpExchange ex, Map<String, String> params) throws IOException {
+        Rectangle rect = parseRect(params);
+        ex.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        ex.sendResponseHeaders(200, 0);
+        Writer w = newWriter(ex);
+        await(coalescer.submit(rect, p -> {
+            try {
+                writePoint(w, p);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+        w.flush();
+    }
+
+    private void count(HttpExchange ex, Map<String, String> params) throws IOException {
+        sendText(ex, 200, await(coalescer.submitCount(parseRect(params))) + "\n");
+    }
+
+    private void knn(HttpExchange ex, Map<String, String> params) throws IOException {
+        int k = integer(params, "k");
+        if (k < 0 || k > MAX_K) throw new IllegalArgumentException("k deve estar entre 0 e " + MAX_K);
+        List<Point> points = index.knn(number(params, "x"), number(params, "y"), k);
+
+        ex.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        ex.sendResponseHeaders(200, 0);
+        Writer w = newWriter(ex);
+        for (Point p : points) writePoint(w, p);
+        w.flush();
+    }
+
+    private void stats(HttpExchange ex, Map<String, String> params) throws IOException {
+        sendText(ex, 200, coalescer.requestCount() + ";" + coalescer.traversalCount() + "\n");
+    }
+
+    // Em timeout ou interrupção a requisição é cancelada no coalescer, que para de chamar
+    // o visitor; depois disso o handler não toca mais no stream da resposta
+    private <T> T await(CompletableFuture<T> f) {
+        try {
+            return f.get(QUERY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            IllegalStateException err = new IllegalStateException("consulta interrompida", e);
+            f.completeExceptionally(err);
+            throw err;
+        } catch (TimeoutException e) {
+            IllegalStateException err = new IllegalStateException("tempo esgotado aguardando a consulta");
+            f.completeExceptionally(err);
+            throw err;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("falha na consulta", e.getCause());
+        }
+    }
+
+    private Writer newWriter(HttpExchange ex) {
+        return new BufferedWriter(new OutputStreamWriter(ex.getResponseBody(), StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    private void writePoint(Writer w, Point p) throws IOException {
+        w.write(Integer.toString(p.id));
+        w.write(';');
+        w.write(Double.toString(p.x));
+        w.write(';');
+        w.write(Double.toString(p.y));
+        w.write('\n');
+    }
+
+    private void sendText(HttpExchange ex, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        ex.sendResponseHeaders(status, bytes.length);
+        OutputStream out = ex.getResponseBody();
+        out.write(bytes);
+        out.flush();
+    }
+
+    private static Map<String, String> parseParams(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) return params;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) params.put(pair.substring(0, eq), pair.substring(eq + 1));
+        }
+        return params;
+    }
+
+    private static Rectangle parseRect(Map<String, String> params) {
+        Rectangle r = new Rectangle(number(params, "minX"), number(params, "minY"),
+                                    number(params, "maxX"), number(params, "maxY"));
+        if (r.minX > r.maxX || r.minY > r.maxY) {
+            throw new IllegalArgumentException("retangulo invalido: min deve ser <= max");
+        }
+        return r;
+    }
+
+    private static double number(Map<String, String> params, String name) {
+        String v = param(params, name);
+        try {
+            double d = Double.parseDouble(v);
+            if (Double.isFinite(d)) return d;
+        } catch (NumberFormatException e) {
+            // cai no erro abaixo
+        }
+        throw new IllegalArgumentException("parametro invalido: " + name + "=" + v);
+    }
+
+    private static int integer(Map<String, String> params, String name) {
+        String v = param(params, name);
+        try {
+            return Integer.parseInt(v);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("parametro invalido: " + name + "=" + v);
+        }
+    }
+
+    private static String param(Map<String, String> params, String name) {
+        String v = params.get(name);
+        if (v == null) throw new IllegalArgumentException("parametro ausente: " + name);
+        return v;
+    }
+
+    // Uso: java QueryServer [porta] [N] [rstar|quad] [uniforme|cluster]
+    // Ao embutir o servidor em outra aplicação, passe -Dsun.net.httpserver.nodelay=true na JVM
+    public static void main(String[] args) throws IOException {
+        // O HttpServer escreve cabeçalho e corpo separadamente; com Nagle ligado cada resposta
+        // em conexão keep-alive espera o ACK atrasado do cliente (~40 ms). A propriedade só
+        // tem efeito se definida antes do primeiro HttpServer da JVM
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int n = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+        String tipo = args.length > 2 ? args[2] : "rstar";
+        boolean cluster = args.length > 3 && args[3].equals("cluster");
+
+        List<Point> pts = TestComparativo.gerarPontos(n, TestComparativo.SPACE, cluster);
+        SpatialIndex index;
+        if (tipo.equals("quad")) {
+            QuadTree quad = new QuadTree(new Rectangle(0, 0, TestComparativo.SPACE, TestComparativo.SPACE));
+            for (Point p : pts) quad.insert(p);
+            index = quad;
+        } else {
+            RStarTree rstar = new RStarTree(64);
+            for (Point p : pts) rstar.insert(p);
+            index = rstar;
+        }
+
+        QueryServer server = new QueryServer(index, port);
+        server.start();
+        System.out.println("QueryServer (" + tipo + ", N=" + n + (cluster ? ", clusterizado" : ", uniforme")
+                + ") em http://localhost:" + server.port());
+    }
+}
@@ -1,7 +1,8 @@
 // RStarTreeOptimized.java
 import java.util.*;
+import java.util.function.Consumer;
 
-public class RStarTree {
+public class RStarTree implements SpatialIndex {
     public Node root;
     private final int maxEntries;
     private final int minEntries;
@@ -20,6 +21,7 @@ public class RStarTree {
         leaf.entries.add(e);
         // Otimização: atualiza MBR incrementalmente ao invés de recalcular
         leaf.expandMBR(e.mbr);
+        propagateMBR(leaf, e.mbr);
 
         if (leaf.entries.size() > maxEntries) {
             handleOverflow(leaf);
@@ -102,6 +104,7 @@ public class RStarTree {
         Node leaf = chooseLeaf(root, e);
         leaf.entries.add(e);
         leaf.expandMBR(e.mbr);
+        propagateMBR(leaf, e.mbr);
 
         if (leaf.entries.size() > maxEntries) {
             // Faz split diretamente sem tentar reinsert
@@ -109,8 +112,29 @@ public class RStarTree {
             handleNewNodeAfterSplit(leaf, newNode);
         }
     }
-    
-    
+
+    // Propaga a expansão do MBR da folha até a raiz, atualizando também a entrada
+    // que aponta para cada nó no pai. Sem isso as consultas descartam subárvores
+    // cujo MBR ficou desatualizado. Para assim que um ancestral já contém o retângulo.
+    private void propagateMBR(Node node, Rectangle r) {
+        Node child = node;
+        Node parent = node.parent;
+        while (parent != null) {
+            Entry parentEntry = null;
+            for (Entry pe : parent.entries) {
+                if (pe.child == child) {
+                    parentEntry = pe;
+                    break;
+                }
+            }
+            if (parentEntry == null || contains(parentEntry.mbr, r)) return;
+            parentEntry.mbr.expandToInclude(r);
+            parent.expandMBR(r);
+            child = parent;
+            parent = parent.parent;
+        }
+    }
+
     private void handleNewNodeAfterSplit(Node node, Node newNode) {
 
         if (node.parent == null) {
@@ -248,11 +272,15 @@ private double calculateOverlap(Rectangle a, Rectangle b) {
 
     public List<Point> rangeQuery(Rectangle rect) {
         List<Point> out = new ArrayList<>();
-        rangeQueryNode(root, rect, out);
+        rangeQueryNode(root, rect, out::add);
         return out;
     }
 
-    private void rangeQueryNode(Node node, Rectangle rect, List<Point> out) {
+    public void rangeQuery(Rectangle rect, Consumer<Point> visitor) {
+        rangeQueryNode(root, rect, visitor);
+    }
+
+    private void rangeQueryNode(Node node, Rectangle rect, Consumer<Point> out) {
         if (node.mbr == null || !intersect(node.mbr, rect)) return;
         
         // Otimização: se o MBR do nó está completamente dentro da query, adiciona todos os pontos
@@ -263,12 +291,12 @@ private double calculateOverlap(Rectangle a, Rectangle b) {
                 if (e.point != null) {
                     if (nodeFullyContained) {
                         // Se o nó está completamente dentro, não precisa verificar cada ponto
-                        out.add(e.point);
+                        out.accept(e.point);
                     } else {
                         // Verificar se o ponto está realmente dentro do retângulo
                         if (e.point.x >= rect.minX && e.point.x <= rect.maxX && 
                             e.point.y >= rect.minY && e.point.y <= rect.maxY) {
-                            out.add(e.point);
+                            out.accept(e.point);
                         }
                     }
                 }
@@ -282,6 +310,32 @@ private double calculateOverlap(Rectangle a, Rectangle b) {
         }
     }
 
+    // Busca best-first: a fila é ordenada pela distância mínima de cada nó/ponto à consulta,
+    // então os pontos saem da fila já em ordem crescente de distância
+    public List<Point> knn(double x, double y, int k) {
+        List<Point> out = new ArrayList<>();
+        if (k <= 0 || root.mbr == null) return out;
+
+        PriorityQueue<KnnCandidate<Node>> queue = new PriorityQueue<>(Comparator.comparingDouble(c -> c.dist));
+        queue.add(new KnnCandidate<>(root.mbr.minDistSq(x, y), root, null));
+
+        while (!queue.isEmpty() && out.size() < k) {
+            KnnCandidate<Node> c = queue.poll();
+            if (c.point != null) {
+                out.add(c.point);
+                continue;
+            }
+            for (Entry e : c.node.entries) {
+                if (e.point != null) {
+                    queue.add(new KnnCandidate<>(e.mbr.minDistSq(x, y), null, e.point));
+                } else if (e.child.mbr != null) {
+                    queue.add(new KnnCandidate<>(e.mbr.minDistSq(x, y), e.child, null));
+                }
+            }
+        }
+        return out;
+    }
+
     private boolean intersect(Rectangle a, Rectangle b) {
         return !(a.maxX < b.minX || a.maxY < b.minY || a.minX > b.maxX || a.minY > b.maxY);
     }
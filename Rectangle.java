@@ -27,6 +27,13 @@ public class Rectangle {
         return Math.max(0.0, (maxX - minX)) * Math.max(0.0, (maxY - minY));
     }
 
+    // Distância mínima (ao quadrado) de (x, y) até o retângulo; zero se estiver dentro
+    public double minDistSq(double x, double y) {
+        double dx = Math.max(0, Math.max(minX - x, x - maxX));
+        double dy = Math.max(0, Math.max(minY - y, y - maxY));
+        return dx * dx + dy * dy;
+    }
+
     public Rectangle copy() {
         return new Rectangle(minX, minY, maxX, maxY);
     }
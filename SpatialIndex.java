@@ -0,0 +1,14 @@
+// SpatialIndex.java
+import java.util.List;
+import java.util.function.Consumer;
+
+// Operações de consulta comuns às estruturas (usadas pelo QueryServer)
+public interface SpatialIndex {
+    List<Point> rangeQuery(Rectangle r);
+
+    // Entrega cada ponto ao visitor durante a travessia, sem montar a lista de resultado
+    void rangeQuery(Rectangle r, Consumer<Point> visitor);
+
+    // k pontos mais próximos de (x, y), ordenados pela distância
+    List<Point> knn(double x, double y, int k);
+}
@@ -1,4 +1,5 @@
 import java.util.*;
+import java.util.concurrent.*;
 
 public class TestComparativo {
 
@@ -8,7 +9,14 @@ public class TestComparativo {
     static final int[] SIZES = { 10000, 50000, 100000, 250000, 500000, 1000000, 2000000, 5000000, 10000000 }; // Cenários de N
     static final double SPACE = 1000.0;
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        // "--verificar" roda só a checagem de corretude, sem medir; a execução padrão não a
+        // chama para não adicionar tempo nem aquecer o JIT antes dos cenários medidos
+        if (args.length > 0 && args[0].equals("--verificar")) {
+            verificarCorretude();
+            return;
+        }
+
         System.out.println("Cenario;N;QueryFrac;Linear_Avg(ms);Linear_Std(ms);Quad_Avg(ms);Quad_Std(ms);RTree_Avg(ms);RTree_Std(ms)");
 
         // Loop pelos tamanhos de N (10k, 50k, 100k)
@@ -81,6 +89,106 @@ public class TestComparativo {
         }
     }
 
+    // Verificação de corretude: range e kNN da QuadTree e da R*-Tree, e range/count
+    // através do QueryCoalescer, comparados com a busca linear. Usa um Random próprio
+    // para não alterar a sequência dos cenários medidos. Mensagens vão para stderr
+    // para não misturar com o CSV.
+    static void verificarCorretude() throws Exception {
+        Random r = new Random(54321);
+        int n = 50000;
+        double[] fracsVerif = {0.0025, 0.01, 0.05, 0.2};
+        int[] ks = {1, 10, 100};
+
+        for (boolean cluster : new boolean[] {false, true}) {
+            String nome = cluster ? "Clusterizado" : "Uniforme";
+            List<Point> pts = gerarPontos(n, SPACE, cluster, r);
+
+            Linear linear = new Linear();
+            QuadTree quad = new QuadTree(new Rectangle(0, 0, SPACE, SPACE));
+            RStarTree rstar = new RStarTree(64);
+            for (Point p : pts) {
+                linear.insert(p);
+                quad.insert(p);
+                rstar.insert(p);
+            }
+            SpatialIndex[] indices = {quad, rstar};
+            String[] nomes = {"QuadTree", "RStarTree"};
+
+            // Range query
+            List<Rectangle> queries = new ArrayList<>();
+            for (double frac : fracsVerif) {
+                for (int i = 0; i < 50; i++) queries.add(gerarQueryAleatoria(SPACE, frac, pts, cluster, r));
+            }
+            for (Rectangle q : queries) {
+                int[] esperado = ids(linear.rangeQuery(q));
+                for (int i = 0; i < indices.length; i++) {
+                    verificar(Arrays.equals(esperado, ids(indices[i].rangeQuery(q))), nome + " " + nomes[i] + " rangeQuery");
+                }
+            }
+
+            // kNN: compara as distâncias, pois empates podem trocar os ids
+            for (int i = 0; i < 100; i++) {
+                double x = r.nextDouble() * SPACE, y = r.nextDouble() * SPACE;
+                int k = ks[i % ks.length];
+                double[] esperado = distancias(linear.knn(x, y, k), x, y);
+                for (int j = 0; j < indices.length; j++) {
+                    verificar(Arrays.equals(esperado, distancias(indices[j].knn(x, y, k), x, y)), nome + " " + nomes[j] + " knn");
+                }
+            }
+
+            // QueryCoalescer: submete tudo de uma vez para que os lotes se formem e as
+            // travessias sejam compartilhadas, depois confere o filtro de cada requisição
+            ExecutorService executor = Executors.newCachedThreadPool();
+            try {
+                for (int i = 0; i < indices.length; i++) {
+                    QueryCoalescer coalescer = new QueryCoalescer(indices[i], executor, 1000);
+                    List<List<Point>> resultados = new ArrayList<>();
+                    List<CompletableFuture<Void>> ranges = new ArrayList<>();
+                    List<CompletableFuture<Integer>> counts = new ArrayList<>();
+                    for (Rectangle q : queries) {
+                        List<Point> out = new ArrayList<>();
+                        resultados.add(out);
+                        ranges.add(coalescer.submit(q, out::add));
+                        counts.add(coalescer.submitCount(q));
+                    }
+                    for (int j = 0; j < queries.size(); j++) {
+                        List<Point> esperado = linear.rangeQuery(queries.get(j));
+                        ranges.get(j).get(30, TimeUnit.SECONDS);
+                        verificar(Arrays.equals(ids(esperado), ids(resultados.get(j))), nome + " " + nomes[i] + " coalescer range");
+                        verificar(esperado.size() == counts.get(j).get(30, TimeUnit.SECONDS), nome + " " + nomes[i] + " coalescer count");
+                    }
+                    verificar(coalescer.traversalCount() < coalescer.requestCount(), nome + " " + nomes[i] + " coalescer nao agrupou requisicoes");
+                    System.err.println("Verificacao " + nome + " " + nomes[i] + ": " + coalescer.requestCount()
+                            + " requisicoes coalescidas em " + coalescer.traversalCount() + " travessias");
+                    coalescer.shutdown();
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+        System.err.println("Verificacao OK: range, kNN e coalescer conferem com a busca linear");
+    }
+
+    static void verificar(boolean ok, String msg) {
+        if (!ok) throw new IllegalStateException("Verificacao falhou: " + msg);
+    }
+
+    static int[] ids(List<Point> pts) {
+        int[] out = new int[pts.size()];
+        for (int i = 0; i < out.length; i++) out[i] = pts.get(i).id;
+        Arrays.sort(out);
+        return out;
+    }
+
+    static double[] distancias(List<Point> pts, double x, double y) {
+        double[] out = new double[pts.size()];
+        for (int i = 0; i < out.length; i++) {
+            Point p = pts.get(i);
+            out[i] = (p.x - x) * (p.x - x) + (p.y - y) * (p.y - y);
+        }
+        return out;
+    }
+
     // Funções Auxiliares de Estatística
     static double mean(double[] data) {
         double sum = 0;
@@ -95,6 +203,10 @@ public class TestComparativo {
     }
 
     static List<Point> gerarPontos(int N, double space, boolean cluster) {
+        return gerarPontos(N, space, cluster, rnd);
+    }
+
+    static List<Point> gerarPontos(int N, double space, boolean cluster, Random rnd) {
         List<Point> list = new ArrayList<>(N);
         if (!cluster) {
             for (int i = 0; i < N; i++) {
@@ -117,6 +229,10 @@ public class TestComparativo {
     }
 
     static Rectangle gerarQueryAleatoria(double space, double frac, List<Point> pontos, boolean cluster) {
+        return gerarQueryAleatoria(space, frac, pontos, cluster, rnd);
+    }
+
+    static Rectangle gerarQueryAleatoria(double space, double frac, List<Point> pontos, boolean cluster, Random rnd) {
         double totalArea = space * space;
         double queryArea = totalArea * frac;
         double size = Math.sqrt(queryArea); 